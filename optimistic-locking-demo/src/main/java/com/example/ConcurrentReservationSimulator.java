@@ -3,23 +3,52 @@ package com.example;
 import com.example.model.Reservation;
 import com.example.model.Salle;
 import com.example.model.Utilisateur;
+import com.example.monitoring.ContentionTracker;
+import com.example.monitoring.PersistenceMetrics;
+import com.example.retry.AsyncOptimisticLockingRetryHandler;
+import com.example.retry.BackoffPolicy;
+import com.example.retry.RetryBudget;
+import com.example.schedule.DailyScheduleCache;
+import com.example.service.AdmissionControlledReservationService;
+import com.example.service.AdmissionController;
+import com.example.service.FetchPlan;
+import com.example.service.GroupCommitWriter;
+import com.example.service.ReservationArchiver;
 import com.example.service.ReservationService;
 import com.example.service.ReservationServiceImpl;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.OptimisticLockException;
 import javax.persistence.Persistence;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.persistence.LockModeType;
 
 public class ConcurrentReservationSimulator {
 
     private static final EntityManagerFactory emf =
             Persistence.createEntityManagerFactory("optimistic-locking-demo");
-    private static final ReservationService reservationService = new ReservationServiceImpl(emf);
+    private static final ReservationServiceImpl reservationServiceImpl = new ReservationServiceImpl(emf);
+    // Les écritures passent par le contrôle d'admission par salle
+    private static final ReservationService reservationService = new AdmissionControlledReservationService(
+            reservationServiceImpl, AdmissionController.forPool(emf), reservationServiceImpl.getIdempotencyCache());
+    // Plannings journaliers en mémoire, mis à jour à chaque commit
+    private static final DailyScheduleCache scheduleCache = new DailyScheduleCache(emf);
+
+    static {
+        reservationServiceImpl.addCommitListener(scheduleCache);
+    }
 
 
 
@@ -31,13 +60,31 @@ public class ConcurrentReservationSimulator {
         // Initialisation des données
         initData();
 
+        // Métriques de persistance exposées via JMX
+        PersistenceMetrics.shared().bindHibernateStatistics(emf);
+        PersistenceMetrics.shared().registerMBean();
+
+        // Archivage en arrière-plan des réservations passées (lots de 100, pause de 50 ms)
+        ReservationArchiver archiver = new ReservationArchiver(emf, 100, 50);
+        archiver.addCommitListener(scheduleCache);
+        archiver.start(() -> LocalDateTime.now().minus(ReservationArchiver.DEFAULT_GRACE_PERIOD), 1, TimeUnit.MINUTES);
+
+        // Chargement initial du planning de la salle A101 pour demain
+        LocalDate demain = LocalDate.now().plusDays(1);
+        System.out.println("Planning initial : " + scheduleCache.getSchedule(1L, demain));
+
         System.out.println("\n=== Choisissez la stratégie de résolution ===");
         System.out.println("1 - Retry automatique");
         System.out.println("2 - Résolution manuelle en cas de conflit");
+        System.out.println("3 - Retry asynchrone (non bloquant)");
+        System.out.println("4 - Débit des commits avec / sans group commit");
         System.out.print("Votre choix : ");
         int choix = scanner.nextInt();
         scanner.nextLine(); // consommer le retour chariot
 
+        // Rapport périodique des clés les plus contendues, une fois le menu passé
+        ContentionTracker.shared().startPeriodicDump(10, TimeUnit.SECONDS);
+
         switch (choix) {
             case 1:
                 System.out.println("\n=== Simulation avec retry automatique ===");
@@ -49,10 +96,27 @@ public class ConcurrentReservationSimulator {
                 simulateConcurrentReservationConflictWithManualChoice();
                 break;
 
+            case 3:
+                System.out.println("\n=== Simulation avec retry asynchrone ===");
+                simulateConcurrentReservationConflictWithAsyncRetry();
+                break;
+
+            case 4:
+                System.out.println("\n=== Comparaison du débit avec / sans group commit ===");
+                compareGroupCommitThroughput();
+                break;
+
             default:
                 System.out.println(" Choix invalide !");
         }
 
+        // Planning mis à jour par les commits, sans requête
+        System.out.println("Planning final : " + scheduleCache.getSchedule(1L, demain));
+
+        System.out.print(ContentionTracker.shared().report());
+        ContentionTracker.shared().close();
+        archiver.close();
+        System.out.print(PersistenceMetrics.shared().getReport());
         emf.close();
     }
 
@@ -251,6 +315,113 @@ public class ConcurrentReservationSimulator {
         });
     }
 
+    private static void simulateConcurrentReservationConflictWithAsyncRetry() {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+        // Backoff "decorrelated jitter" et retries limités à 20 % des premières tentatives
+        AsyncOptimisticLockingRetryHandler retryHandler = new AsyncOptimisticLockingRetryHandler(
+                reservationService, 3, BackoffPolicy.decorrelatedJitter(50, 1000),
+                new RetryBudget(0.2, 10, 100), workers, timer);
+
+        CompletableFuture<Reservation> future1 = retryHandler.executeWithRetry(1L, r -> {
+            System.out.println("Tâche 1 : Modification du motif");
+            r.setMotif("Réunion d'équipe modifiée par la tâche 1");
+        });
+        CompletableFuture<Reservation> future2 = retryHandler.executeWithRetry(1L, r -> {
+            System.out.println("Tâche 2 : Modification des dates");
+            r.setDateDebut(r.getDateDebut().plusHours(1));
+            r.setDateFin(r.getDateFin().plusHours(1));
+        });
+
+        future1.whenComplete((r, e) -> System.out.println(e == null
+                ? "Tâche 1 : Réservation mise à jour avec succès !"
+                : "Tâche 1 : Exception finale : " + e.getMessage()));
+        future2.whenComplete((r, e) -> System.out.println(e == null
+                ? "Tâche 2 : Réservation mise à jour avec succès !"
+                : "Tâche 2 : Exception finale : " + e.getMessage()));
+
+        CompletableFuture.allOf(future1, future2).exceptionally(e -> null).join();
+        timer.shutdown();
+        workers.shutdown();
+
+        reservationService.findById(1L).ifPresent(r -> {
+            System.out.println("\nÉtat final de la réservation avec retry asynchrone :");
+            System.out.println("Motif : " + r.getMotif());
+            System.out.println("Date début : " + r.getDateDebut());
+            System.out.println("Date fin : " + r.getDateFin());
+            System.out.println("Version : " + r.getVersion());
+        });
+    }
+
+    private static void compareGroupCommitThroughput() throws InterruptedException {
+        int threads = 8;
+        int operationsPerThread = 50;
+
+        // Références détachées vers la salle et l'utilisateur de initData()
+        var em = emf.createEntityManager();
+        Salle salle = em.find(Salle.class, 1L);
+        Utilisateur utilisateur = em.find(Utilisateur.class, 1L);
+        em.close();
+
+        // Sans group commit : une transaction par écriture
+        LocalDateTime base1 = LocalDateTime.now().plusDays(30).withHour(0).withMinute(0);
+        long start = System.nanoTime();
+        runConcurrentSaves(threads, operationsPerThread, base1, salle, utilisateur,
+                r -> reservationServiceImpl.save(r));
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        int total = threads * operationsPerThread;
+        System.out.printf("Sans group commit : %d écritures, %d commits, %.1f commits/s, %.1f écritures/s%n",
+                total, total, total / seconds, total / seconds);
+
+        // Avec group commit : lots de 32 opérations ou 500 µs au plus
+        LocalDateTime base2 = LocalDateTime.now().plusDays(60).withHour(0).withMinute(0);
+        try (GroupCommitWriter writer = new GroupCommitWriter(emf, reservationServiceImpl, 32, 500)) {
+            start = System.nanoTime();
+            runConcurrentSaves(threads, operationsPerThread, base2, salle, utilisateur,
+                    r -> writer.save(r).join());
+            seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Avec group commit : %d écritures, %d commits (%d lot(s) rejoué(s)), %.1f commits/s, %.1f écritures/s%n",
+                    total, writer.getCommitCount(), writer.getFallbackCount(),
+                    writer.getCommitCount() / seconds, total / seconds);
+        }
+    }
+
+    private static void runConcurrentSaves(int threads, int operationsPerThread, LocalDateTime base,
+                                           Salle salle, Utilisateur utilisateur,
+                                           Consumer<Reservation> save) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    latch.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        // Créneaux de 30 minutes distincts : aucune réservation ne se chevauche
+                        LocalDateTime debut = base.plusMinutes(30L * (thread * operationsPerThread + i));
+                        Reservation reservation = new Reservation(debut, debut.plusMinutes(30), "Benchmark");
+                        reservation.setSalle(salle);
+                        reservation.setUtilisateur(utilisateur);
+                        try {
+                            save.accept(reservation);
+                        } catch (Exception e) {
+                            System.out.println("Écriture en échec : " + e.getMessage());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        latch.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
     private static void handleConflictManually(Reservation oldReservation, Reservation newReservation) {
         Scanner scanner = new Scanner(System.in);
         System.out.println("\n Conflit détecté !");
@@ -283,13 +454,10 @@ public class ConcurrentReservationSimulator {
         // Thread 1 : modification de la réservation
         Thread thread1 = new Thread(() -> {
             try {
-                Reservation r1 = reservationService.findById(reservationOriginale.getId())
+                Reservation r1 = reservationService.findById(reservationOriginale.getId(), FetchPlan.WITH_SALLE)
                         .orElseThrow(() -> new RuntimeException("Réservation introuvable"));
                 r1.setMotif("Réunion projet Thread 1");
 
-                // Réassigner la salle persistée
-                r1.setSalle(r1.getSalle());
-
                 reservationService.update(r1);
                 System.out.println("Thread 1 : Mise à jour réussie !");
             } catch (Exception e) {
@@ -300,22 +468,18 @@ public class ConcurrentReservationSimulator {
         // Thread 2 : modification concurrente
         Thread thread2 = new Thread(() -> {
             try {
-                Reservation r2 = reservationService.findById(reservationOriginale.getId())
+                Reservation r2 = reservationService.findById(reservationOriginale.getId(), FetchPlan.WITH_SALLE)
                         .orElseThrow(() -> new RuntimeException("Réservation introuvable"));
                 r2.setMotif("Réunion projet Thread 2");
 
-                // Réassigner la salle persistée
-                r2.setSalle(r2.getSalle());
-
                 reservationService.update(r2);
                 System.out.println("Thread 2 : Mise à jour réussie !");
             } catch (OptimisticLockException ole) {
                 System.out.println("Thread 2 : Conflit détecté !");
                 try {
-                    Reservation latest = reservationService.findById(reservationOriginale.getId())
+                    Reservation latest = reservationService.findById(reservationOriginale.getId(), FetchPlan.WITH_SALLE)
                             .orElseThrow(() -> new RuntimeException("Réservation introuvable"));
                     latest.setMotif("Réunion projet Thread 2 (après résolution manuelle)");
-                    latest.setSalle(latest.getSalle());
                     reservationService.update(latest);
                     System.out.println("Thread 2 : Conflit résolu manuellement !");
                 } catch (Exception ex) {
@@ -1,6 +1,8 @@
 package com.example;
 
 import com.example.model.Reservation;
+import com.example.monitoring.ContentionTracker;
+import com.example.retry.BackoffPolicy;
 import com.example.service.ReservationService;
 
 import javax.persistence.OptimisticLockException;
@@ -11,15 +13,32 @@ public class OptimisticLockingRetryHandler {
 
     private final ReservationService reservationService;
     private final int maxRetries;
+    private final ContentionTracker contentionTracker;
+    private final BackoffPolicy backoffPolicy;
 
     public OptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries) {
+        this(reservationService, maxRetries, ContentionTracker.shared());
+    }
+
+    public OptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries,
+                                         ContentionTracker contentionTracker) {
+        // 100, 200, 400, 800... plus un petit jitter aléatoire
+        this(reservationService, maxRetries, contentionTracker, BackoffPolicy.exponential(100, 10_000, 100));
+    }
+
+    public OptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries,
+                                         ContentionTracker contentionTracker, BackoffPolicy backoffPolicy) {
         this.reservationService = reservationService;
         this.maxRetries = maxRetries;
+        this.contentionTracker = contentionTracker;
+        this.backoffPolicy = backoffPolicy;
     }
 
     public void executeWithRetry(Long reservationId, Consumer<Reservation> operation) {
         int attempts = 0;
         boolean success = false;
+        Long salleId = null;
+        long delay = 0;
 
         while (!success && attempts < maxRetries) {
             attempts++;
@@ -31,6 +50,7 @@ public class OptimisticLockingRetryHandler {
                 }
 
                 Reservation reservation = reservationOpt.get();
+                salleId = reservation.getSalle() != null ? reservation.getSalle().getId() : null;
                 System.out.println("Tentative " + attempts + " : Réservation récupérée, version = " + reservation.getVersion());
 
                 // Appliquer l'opération sur la réservation
@@ -43,6 +63,7 @@ public class OptimisticLockingRetryHandler {
                 System.out.println("Opération réussie après " + attempts + " tentative(s) !");
             } catch (OptimisticLockException e) {
                 System.out.println("Tentative " + attempts + " : Conflit de verrouillage optimiste détecté !");
+                contentionTracker.recordConflict(reservationId, salleId);
 
                 if (attempts >= maxRetries) {
                     System.out.println("Nombre maximum de tentatives atteint. Abandon de l'opération.");
@@ -51,9 +72,9 @@ public class OptimisticLockingRetryHandler {
 
 
                 try {
-                    long delay = (long) (100 * Math.pow(2, attempts - 1)); // 100, 200, 400, 800...
-                    delay += (long) (Math.random() * 100); // petit jitter aléatoire
+                    delay = backoffPolicy.delayMillis(attempts, delay);
                     System.out.println("Attente avant retry : " + delay + "ms");
+                    contentionTracker.recordWait(reservationId, salleId, delay);
                     Thread.sleep(delay);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
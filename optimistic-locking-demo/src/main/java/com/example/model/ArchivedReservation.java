@@ -0,0 +1,86 @@
+package com.example.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reservations_archive")
+public class ArchivedReservation {
+
+    // Même identifiant que la réservation d'origine
+    @Id
+    private Long id;
+
+    @Column(name = "date_debut", nullable = false)
+    private LocalDateTime dateDebut;
+
+    @Column(name = "date_fin", nullable = false)
+    private LocalDateTime dateFin;
+
+    @Column(length = 500)
+    private String motif;
+
+    @Column(name = "utilisateur_id", nullable = false)
+    private Long utilisateurId;
+
+    @Column(name = "salle_id", nullable = false)
+    private Long salleId;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    // Constructeur par défaut requis par JPA
+    public ArchivedReservation() {
+    }
+
+    public ArchivedReservation(Reservation reservation, LocalDateTime archivedAt) {
+        this.id = reservation.getId();
+        this.dateDebut = reservation.getDateDebut();
+        this.dateFin = reservation.getDateFin();
+        this.motif = reservation.getMotif();
+        this.utilisateurId = reservation.getUtilisateur().getId();
+        this.salleId = reservation.getSalle().getId();
+        this.archivedAt = archivedAt;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getDateDebut() {
+        return dateDebut;
+    }
+
+    public LocalDateTime getDateFin() {
+        return dateFin;
+    }
+
+    public String getMotif() {
+        return motif;
+    }
+
+    public Long getUtilisateurId() {
+        return utilisateurId;
+    }
+
+    public Long getSalleId() {
+        return salleId;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedReservation{" +
+                "id=" + id +
+                ", dateDebut=" + dateDebut +
+                ", dateFin=" + dateFin +
+                ", motif='" + motif + '\'' +
+                ", salleId=" + salleId +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
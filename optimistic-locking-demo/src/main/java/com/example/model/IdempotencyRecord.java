@@ -0,0 +1,72 @@
+package com.example.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    // La clé primaire garantit l'unicité de la clé d'idempotence
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 20)
+    private String operation;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    // Empreinte de la requête d'origine, comparée à celle des doublons
+    @Column(nullable = false, length = 200)
+    private String fingerprint;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructeur par défaut requis par JPA
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String idempotencyKey, String operation, Long reservationId, String fingerprint,
+                             LocalDateTime createdAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.operation = operation;
+        this.reservationId = reservationId;
+        this.fingerprint = fingerprint;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", operation='" + operation + '\'' +
+                ", reservationId=" + reservationId +
+                ", fingerprint='" + fingerprint + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
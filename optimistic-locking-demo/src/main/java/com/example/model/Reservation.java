@@ -6,6 +6,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "reservations")
+// Graphes de chargement utilisés par les FetchPlan du service
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Reservation.salle", attributeNodes = @NamedAttributeNode("salle")),
+        @NamedEntityGraph(name = "Reservation.utilisateur", attributeNodes = @NamedAttributeNode("utilisateur")),
+        @NamedEntityGraph(name = "Reservation.salleEtUtilisateur", attributeNodes = {
+                @NamedAttributeNode("salle"),
+                @NamedAttributeNode("utilisateur")
+        })
+})
 public class Reservation {
 
     @Id
@@ -0,0 +1,115 @@
+package com.example.monitoring;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détecteur de clés chaudes : compte les conflits de verrouillage optimiste et
+ * les temps d'attente par réservation et par salle, en mémoire bornée.
+ * Conçu pour rester actif en production (pas d'allocation sur le chemin chaud
+ * hors des clés déjà présentes dans le top-K).
+ */
+public class ContentionTracker implements AutoCloseable {
+
+    private static final ContentionTracker SHARED = new ContentionTracker(10, 4, 1024);
+
+    private final HotKeyTracker reservations;
+    private final HotKeyTracker salles;
+    private ScheduledExecutorService scheduler;
+
+    public ContentionTracker(int k, int depth, int width) {
+        this.reservations = new HotKeyTracker("reservations", k, depth, width);
+        this.salles = new HotKeyTracker("salles", k, depth, width);
+    }
+
+    /**
+     * Instance partagée utilisée par défaut par les composants de l'application.
+     */
+    public static ContentionTracker shared() {
+        return SHARED;
+    }
+
+    public void recordConflict(Long reservationId, Long salleId) {
+        if (reservationId != null) {
+            reservations.recordConflict(reservationId);
+        }
+        if (salleId != null) {
+            salles.recordConflict(salleId);
+        }
+    }
+
+    public void recordWait(Long reservationId, Long salleId, long millis) {
+        if (reservationId != null) {
+            reservations.recordWait(reservationId, millis);
+        }
+        if (salleId != null) {
+            salles.recordWait(salleId, millis);
+        }
+    }
+
+    public List<HotKeyTracker.HotKey> topReservations() {
+        return reservations.top();
+    }
+
+    public List<HotKeyTracker.HotKey> topSalles() {
+        return salles.top();
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder("=== Clés les plus contendues ===\n");
+        append(sb, reservations);
+        append(sb, salles);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, HotKeyTracker tracker) {
+        sb.append(tracker.getName()).append(" :\n");
+        List<HotKeyTracker.HotKey> top = tracker.top();
+        if (top.isEmpty()) {
+            sb.append("  (aucune contention)\n");
+        }
+        for (HotKeyTracker.HotKey hotKey : top) {
+            sb.append("  id=").append(hotKey.key())
+                    .append(" conflits~").append(hotKey.conflicts())
+                    .append(" attente~").append(hotKey.waitMillis()).append("ms\n");
+        }
+    }
+
+    public boolean hasActivity() {
+        return !reservations.top().isEmpty() || !salles.top().isEmpty();
+    }
+
+    /**
+     * Affiche périodiquement le rapport puis divise les compteurs par deux,
+     * de sorte que le top-K suive les tempêtes de conflits en cours.
+     * Rien n'est affiché tant qu'aucun conflit ni aucune attente n'a été enregistré.
+     */
+    public synchronized void startPeriodicDump(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "contention-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!hasActivity()) {
+                return;
+            }
+            System.out.print(report());
+            reservations.decay();
+            salles.decay();
+        }, period, period, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch à mémoire fixe : estime la fréquence d'une clé {@code long}
+ * avec une surestimation bornée, sans jamais allouer après la construction.
+ * Les incréments sont sans verrou (un CAS par ligne).
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x27D4EB2F165667C5L, 0x94D049BB133111EBL
+    };
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param depth nombre de fonctions de hachage (1 à 8)
+     * @param width nombre de compteurs par ligne, arrondi à la puissance de 2 supérieure
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth doit être compris entre 1 et " + SEEDS.length);
+        }
+        if (width < 1) {
+            throw new IllegalArgumentException("width doit être positif");
+        }
+        this.depth = depth;
+        int w = Integer.highestOneBit(width);
+        if (w < width) {
+            w <<= 1;
+        }
+        this.mask = w - 1;
+        this.counters = new AtomicLongArray(depth * w);
+    }
+
+    /**
+     * Ajoute {@code delta} à la clé et retourne la nouvelle estimation.
+     */
+    public long add(long key, long delta) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long value = counters.addAndGet(index(row, key), delta);
+            if (value < estimate) {
+                estimate = value;
+            }
+        }
+        return estimate;
+    }
+
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long value = counters.get(index(row, key));
+            if (value < estimate) {
+                estimate = value;
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Divise tous les compteurs par deux, pour que les estimations reflètent
+     * l'activité récente plutôt que le cumul depuis le démarrage.
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, v -> v >> 1);
+        }
+    }
+
+    private int index(int row, long key) {
+        long h = key ^ SEEDS[row];
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return row * (mask + 1) + ((int) h & mask);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.monitoring;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suit les clés les plus contendues d'une dimension (réservation, salle...).
+ * Les fréquences sont estimées par un {@link CountMinSketch} ; seules les
+ * {@code k} clés les plus contendues sont conservées explicitement, ce qui
+ * borne la mémoire quelle que soit la cardinalité.
+ * <p>
+ * Le classement combine conflits et attentes (un conflit compte pour
+ * {@value #CONFLICT_WEIGHT_MILLIS} ms d'attente) : une clé qui ne fait
+ * qu'attendre (verrou, file d'admission) apparaît elle aussi.
+ */
+public class HotKeyTracker {
+
+    static final long CONFLICT_WEIGHT_MILLIS = 100;
+
+    private final String name;
+    private final int k;
+    private final CountMinSketch conflicts;
+    private final CountMinSketch waitMillis;
+    private final Map<Long, Long> topK = new ConcurrentHashMap<>();
+
+    // Plus petit score du top-K lorsqu'il est plein : en dessous, aucune prise de verrou
+    private volatile long threshold = 0;
+
+    public HotKeyTracker(String name, int k, int depth, int width) {
+        this.name = name;
+        this.k = k;
+        this.conflicts = new CountMinSketch(depth, width);
+        this.waitMillis = new CountMinSketch(depth, width);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordConflict(long key) {
+        long conflictCount = conflicts.add(key, 1);
+        offer(key, score(conflictCount, waitMillis.estimate(key)));
+    }
+
+    public void recordWait(long key, long millis) {
+        if (millis > 0) {
+            long waited = waitMillis.add(key, millis);
+            offer(key, score(conflicts.estimate(key), waited));
+        }
+    }
+
+    private static long score(long conflictCount, long waited) {
+        return conflictCount * CONFLICT_WEIGHT_MILLIS + waited;
+    }
+
+    private void offer(long key, long score) {
+        if (topK.computeIfPresent(key, (ignored, previous) -> score) != null) {
+            return;
+        }
+        if (topK.size() >= k && score <= threshold) {
+            return;
+        }
+        synchronized (this) {
+            topK.put(key, score);
+            if (topK.size() > k) {
+                Long coldest = null;
+                long min = Long.MAX_VALUE;
+                for (Map.Entry<Long, Long> entry : topK.entrySet()) {
+                    if (entry.getValue() < min) {
+                        min = entry.getValue();
+                        coldest = entry.getKey();
+                    }
+                }
+                topK.remove(coldest);
+            }
+            if (topK.size() >= k) {
+                long min = Long.MAX_VALUE;
+                for (long value : topK.values()) {
+                    min = Math.min(min, value);
+                }
+                threshold = min;
+            }
+        }
+    }
+
+    /**
+     * Vue instantanée des clés les plus contendues, triées par score décroissant
+     * (conflits pondérés plus attente).
+     */
+    public List<HotKey> top() {
+        List<HotKey> result = new ArrayList<>(k);
+        for (Long key : topK.keySet()) {
+            result.add(new HotKey(key, conflicts.estimate(key), waitMillis.estimate(key)));
+        }
+        result.sort(Comparator.comparingLong((HotKey hotKey) -> score(hotKey.conflicts(), hotKey.waitMillis()))
+                .reversed());
+        return result;
+    }
+
+    /**
+     * Applique une décroissance exponentielle (facteur 1/2) aux compteurs.
+     */
+    public synchronized void decay() {
+        conflicts.decay();
+        waitMillis.decay();
+        topK.replaceAll((key, value) -> value >> 1);
+        topK.values().removeIf(value -> value == 0);
+        threshold = 0;
+    }
+
+    public record HotKey(long key, long conflicts, long waitMillis) {
+    }
+}
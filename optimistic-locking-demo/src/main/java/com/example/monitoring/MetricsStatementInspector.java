@@ -0,0 +1,18 @@
+package com.example.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Inspecteur Hibernate qui compte chaque instruction SQL préparée pour les
+ * opérations {@link PersistenceMetrics} ouvertes sur le thread courant, sans
+ * modifier la requête.
+ * Déclaré via {@code hibernate.session_factory.statement_inspector}.
+ */
+public class MetricsStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        PersistenceMetrics.recordStatement();
+        return sql;
+    }
+}
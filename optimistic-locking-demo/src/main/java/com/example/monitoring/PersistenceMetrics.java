@@ -0,0 +1,189 @@
+package com.example.monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registre des métriques de la couche de persistance : latence et nombre
+ * d'instructions SQL par opération, plus les statistiques Hibernate.
+ * <p>
+ * Les instructions sont comptées par {@link MetricsStatementInspector} et
+ * attribuées à toutes les opérations ouvertes sur le thread courant, quel que
+ * soit le registre qui les mesure : un {@code update} inclut ainsi le
+ * {@code COUNT} de {@code hasOverlap}.
+ */
+public class PersistenceMetrics implements PersistenceMetricsMXBean {
+
+    private static final PersistenceMetrics SHARED = new PersistenceMetrics();
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    // Opérations ouvertes sur le thread, tous registres confondus
+    private static final ThreadLocal<ArrayDeque<OperationMetrics>> ACTIVE = ThreadLocal.withInitial(ArrayDeque::new);
+    private volatile Statistics hibernateStatistics;
+
+    /**
+     * Instance partagée, alimentée par l'inspecteur d'instructions Hibernate.
+     */
+    public static PersistenceMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Démarre la mesure d'une opération ; à fermer dans un try-with-resources.
+     */
+    public Timer start(String operation) {
+        OperationMetrics metrics = operations.computeIfAbsent(operation, name -> new OperationMetrics());
+        ACTIVE.get().push(metrics);
+        return new Timer(metrics);
+    }
+
+    static void recordStatement() {
+        ArrayDeque<OperationMetrics> stack = ACTIVE.get();
+        for (OperationMetrics metrics : stack) {
+            metrics.statements.increment();
+        }
+    }
+
+    /**
+     * Active et rattache les statistiques Hibernate de la fabrique.
+     */
+    public void bindHibernateStatistics(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        this.hibernateStatistics = statistics;
+    }
+
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("com.example:type=PersistenceMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.out.println("Enregistrement JMX impossible : " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.latency.getCount()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        Map<String, Long> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.latency.getPercentileMicros(99)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getStatementsPerOperation() {
+        Map<String, Double> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.statementsPerCall()));
+        return result;
+    }
+
+    @Override
+    public long getPrepareStatementCount() {
+        Statistics statistics = hibernateStatistics;
+        return statistics == null ? 0 : statistics.getPrepareStatementCount();
+    }
+
+    @Override
+    public long getEntityLoadCount() {
+        Statistics statistics = hibernateStatistics;
+        return statistics == null ? 0 : statistics.getEntityLoadCount();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        Statistics statistics = hibernateStatistics;
+        return statistics == null ? 0 : statistics.getTransactionCount();
+    }
+
+    @Override
+    public long getOptimisticFailureCount() {
+        Statistics statistics = hibernateStatistics;
+        return statistics == null ? 0 : statistics.getOptimisticFailureCount();
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder("=== Métriques de persistance ===\n");
+        sb.append(String.format("%-32s %8s %10s %10s %10s %10s%n",
+                "opération", "appels", "moy(µs)", "p99(µs)", "max(µs)", "sql/appel"));
+        new TreeMap<>(operations).forEach((name, metrics) -> sb.append(String.format(
+                "%-32s %8d %10d %10d %10d %10.2f%n",
+                name,
+                metrics.latency.getCount(),
+                metrics.latency.getMeanMicros(),
+                metrics.latency.getPercentileMicros(99),
+                metrics.latency.getMaxMicros(),
+                metrics.statementsPerCall())));
+
+        Statistics statistics = hibernateStatistics;
+        if (statistics != null) {
+            sb.append("Hibernate : instructions préparées=").append(statistics.getPrepareStatementCount())
+                    .append(", requêtes=").append(statistics.getQueryExecutionCount())
+                    .append(", entités chargées=").append(statistics.getEntityLoadCount())
+                    .append(", entités récupérées=").append(statistics.getEntityFetchCount())
+                    .append(", insertions=").append(statistics.getEntityInsertCount())
+                    .append(", mises à jour=").append(statistics.getEntityUpdateCount())
+                    .append(", suppressions=").append(statistics.getEntityDeleteCount())
+                    .append(", flushs=").append(statistics.getFlushCount())
+                    .append(", transactions=").append(statistics.getTransactionCount())
+                    .append(", sessions ouvertes=").append(statistics.getSessionOpenCount())
+                    .append(", échecs optimistes=").append(statistics.getOptimisticFailureCount())
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+        Statistics statistics = hibernateStatistics;
+        if (statistics != null) {
+            statistics.clear();
+        }
+    }
+
+    private static class OperationMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder statements = new LongAdder();
+
+        double statementsPerCall() {
+            long calls = latency.getCount();
+            return calls == 0 ? 0 : (double) statements.sum() / calls;
+        }
+    }
+
+    public class Timer implements AutoCloseable {
+
+        private final OperationMetrics metrics;
+        private final long start = System.nanoTime();
+
+        private Timer(OperationMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void close() {
+            metrics.latency.record(System.nanoTime() - start);
+            ACTIVE.get().pop();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.monitoring;
+
+import java.util.Map;
+
+/**
+ * Vue JMX de {@link PersistenceMetrics}.
+ */
+public interface PersistenceMetricsMXBean {
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getP99Micros();
+
+    Map<String, Double> getStatementsPerOperation();
+
+    long getPrepareStatementCount();
+
+    long getEntityLoadCount();
+
+    long getTransactionCount();
+
+    long getOptimisticFailureCount();
+
+    String getReport();
+
+    void reset();
+}
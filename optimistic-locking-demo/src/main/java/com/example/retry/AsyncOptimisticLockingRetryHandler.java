@@ -0,0 +1,116 @@
+package com.example.retry;
+
+import com.example.model.Reservation;
+import com.example.monitoring.ContentionTracker;
+import com.example.service.ReservationService;
+
+import javax.persistence.OptimisticLockException;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Variante non bloquante de {@link com.example.OptimisticLockingRetryHandler} :
+ * chaque tentative s'exécute sur {@code workers} et les retries sont planifiés
+ * sur un timer, sans immobiliser de thread pendant l'attente.
+ */
+public class AsyncOptimisticLockingRetryHandler {
+
+    private final ReservationService reservationService;
+    private final int maxRetries;
+    private final BackoffPolicy backoffPolicy;
+    private final RetryBudget retryBudget;
+    private final Executor workers;
+    private final ScheduledExecutorService timer;
+    private final ContentionTracker contentionTracker;
+
+    public AsyncOptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries,
+                                              BackoffPolicy backoffPolicy, RetryBudget retryBudget,
+                                              Executor workers, ScheduledExecutorService timer) {
+        this(reservationService, maxRetries, backoffPolicy, retryBudget, workers, timer, ContentionTracker.shared());
+    }
+
+    public AsyncOptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries,
+                                              BackoffPolicy backoffPolicy, RetryBudget retryBudget,
+                                              Executor workers, ScheduledExecutorService timer,
+                                              ContentionTracker contentionTracker) {
+        this.reservationService = reservationService;
+        this.maxRetries = maxRetries;
+        this.backoffPolicy = backoffPolicy;
+        this.retryBudget = retryBudget;
+        this.workers = workers;
+        this.timer = timer;
+        this.contentionTracker = contentionTracker;
+    }
+
+    /**
+     * Applique {@code operation} puis met à jour la réservation, en réessayant
+     * en cas de conflit optimiste. Le futur est complété avec la réservation
+     * mise à jour, ou avec l'exception du dernier échec.
+     */
+    public CompletableFuture<Reservation> executeWithRetry(Long reservationId, Consumer<Reservation> operation) {
+        CompletableFuture<Reservation> result = new CompletableFuture<>();
+        retryBudget.recordFirstAttempt();
+        workers.execute(() -> attempt(reservationId, operation, 1, 0, result));
+        return result;
+    }
+
+    private void attempt(Long reservationId, Consumer<Reservation> operation, int attempt, long previousDelay,
+                         CompletableFuture<Reservation> result) {
+        Long salleId = null;
+        try {
+            Optional<Reservation> reservationOpt = reservationService.findById(reservationId);
+            if (!reservationOpt.isPresent()) {
+                result.completeExceptionally(new NoSuchElementException("Réservation non trouvée : " + reservationId));
+                return;
+            }
+
+            Reservation reservation = reservationOpt.get();
+            salleId = reservation.getSalle() != null ? reservation.getSalle().getId() : null;
+            operation.accept(reservation);
+            reservationService.update(reservation);
+            result.complete(reservation);
+        } catch (RuntimeException e) {
+            if (!isOptimisticLockFailure(e)) {
+                result.completeExceptionally(e);
+                return;
+            }
+
+            contentionTracker.recordConflict(reservationId, salleId);
+            if (attempt >= maxRetries) {
+                System.out.println("Nombre maximum de tentatives atteint. Abandon de l'opération.");
+                result.completeExceptionally(e);
+                return;
+            }
+            if (!retryBudget.tryAcquireRetry()) {
+                System.out.println("Budget de retry épuisé. Abandon de l'opération.");
+                result.completeExceptionally(e);
+                return;
+            }
+
+            long delay = backoffPolicy.delayMillis(attempt, previousDelay);
+            contentionTracker.recordWait(reservationId, salleId, delay);
+            try {
+                timer.schedule(() -> workers.execute(
+                        () -> attempt(reservationId, operation, attempt + 1, delay, result)),
+                        delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException rejected) {
+                result.completeExceptionally(rejected);
+            }
+        }
+    }
+
+    // Hibernate peut remonter le conflit enveloppé (RollbackException au commit)
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stratégie de calcul du délai avant une nouvelle tentative.
+ * Les implémentations utilisent {@link ThreadLocalRandom} pour le jitter,
+ * afin de ne pas partager un générateur entre les threads.
+ */
+@FunctionalInterface
+public interface BackoffPolicy {
+
+    /**
+     * @param attempt       numéro de la tentative qui vient d'échouer (à partir de 1)
+     * @param previousDelay délai appliqué avant cette tentative (0 pour la première)
+     * @return délai en millisecondes avant la tentative suivante
+     */
+    long delayMillis(int attempt, long previousDelay);
+
+    /**
+     * Exponentiel : base·2^(n-1) plus un jitter uniforme dans [0, jitter).
+     */
+    static BackoffPolicy exponential(long baseMillis, long maxMillis, long jitterMillis) {
+        return (attempt, previousDelay) -> {
+            long delay = Math.min(maxMillis, baseMillis << Math.min(attempt - 1, 30));
+            return jitterMillis > 0 ? delay + ThreadLocalRandom.current().nextLong(jitterMillis) : delay;
+        };
+    }
+
+    /**
+     * « Decorrelated jitter » : délai aléatoire entre base et 3 fois le délai
+     * précédent, plafonné à {@code maxMillis}.
+     */
+    static BackoffPolicy decorrelatedJitter(long baseMillis, long maxMillis) {
+        return (attempt, previousDelay) -> {
+            long upper = Math.max(baseMillis + 1, Math.min(maxMillis, Math.max(previousDelay, baseMillis) * 3));
+            return ThreadLocalRandom.current().nextLong(baseMillis, upper);
+        };
+    }
+
+    static BackoffPolicy constant(long delayMillis) {
+        return (attempt, previousDelay) -> delayMillis;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget global de retries : chaque première tentative crédite {@code ratio}
+ * jeton, chaque retry en consomme un. Les retries restent ainsi bornés à une
+ * fraction des requêtes d'origine, et une tempête de conflits ne peut pas
+ * multiplier la charge.
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long creditPerAttempt;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    /**
+     * @param ratio         fraction de retries autorisée par rapport aux premières tentatives
+     * @param initialTokens retries disponibles au démarrage
+     * @param maxTokens     nombre maximal de retries accumulables
+     */
+    public RetryBudget(double ratio, int initialTokens, int maxTokens) {
+        this.creditPerAttempt = (long) (ratio * SCALE);
+        this.maxTokens = maxTokens * SCALE;
+        this.tokens = new AtomicLong(Math.min(initialTokens, maxTokens) * SCALE);
+    }
+
+    public void recordFirstAttempt() {
+        tokens.getAndUpdate(t -> Math.min(maxTokens, t + creditPerAttempt));
+    }
+
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double availableRetries() {
+        return (double) tokens.get() / SCALE;
+    }
+}
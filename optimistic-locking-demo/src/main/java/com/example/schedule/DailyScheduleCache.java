@@ -0,0 +1,286 @@
+package com.example.schedule;
+
+import com.example.model.Reservation;
+import com.example.service.ReservationCommitListener;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plannings journaliers par salle, en mémoire, pour les écrans et tableaux de
+ * bord. Les lecteurs obtiennent un {@link DaySchedule} immuable par une simple
+ * lecture volatile de la map : aucune attente, aucun accès à la base une fois
+ * la journée chargée.
+ * <p>
+ * Les commits signalés par {@link com.example.service.ReservationServiceImpl}
+ * (et les suppressions de l'archivage) reconstruisent par copie les journées
+ * concernées déjà en cache. Les écritures dans le cache sont sérialisées par
+ * un verrou et une notification plus ancienne que la dernière version
+ * appliquée pour la réservation est ignorée.
+ * <p>
+ * Une journée absente est chargée une seule fois, hors verrou, les lecteurs
+ * concurrents attendant ce même chargement. Les commits survenus pendant la
+ * requête sont mémorisés puis rejoués sur le résultat avant sa publication.
+ * Les journées passées sont retirées du cache au changement de jour.
+ */
+public class DailyScheduleCache implements ReservationCommitListener {
+
+    private final EntityManagerFactory emf;
+    private final Map<Key, DaySchedule> schedules = new ConcurrentHashMap<>();
+
+    // Protégés par lock
+    private final Object lock = new Object();
+    private final Map<Long, Tracked> trackedReservations = new HashMap<>();
+    private final Map<Key, Loading> loading = new HashMap<>();
+    private LocalDate lastSweep = LocalDate.MIN;
+
+    public DailyScheduleCache(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    public DaySchedule getSchedule(Long salleId, LocalDate day) {
+        Key key = new Key(salleId, day);
+        DaySchedule schedule = schedules.get(key);
+        return schedule != null ? schedule : load(key);
+    }
+
+    private DaySchedule load(Key key) {
+        Loading pending;
+        boolean owner = false;
+        synchronized (lock) {
+            DaySchedule schedule = schedules.get(key);
+            if (schedule != null) {
+                return schedule;
+            }
+            pending = loading.get(key);
+            if (pending == null) {
+                pending = new Loading();
+                loading.put(key, pending);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            // Chargement déjà en cours pour cette journée : on attend son résultat
+            return pending.await();
+        }
+
+        try {
+            List<Row> rows = query(key);
+            DaySchedule schedule;
+            synchronized (lock) {
+                schedule = install(key, rows, pending.missed);
+                loading.remove(key);
+            }
+            pending.result.complete(schedule);
+            return schedule;
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                loading.remove(key);
+            }
+            pending.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private List<Row> query(Key key) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> results = em.createQuery("""
+                    SELECT r.id, r.dateDebut, r.dateFin, r.version FROM Reservation r
+                    WHERE r.salle.id = :salleId
+                      AND r.dateDebut < :dayEnd
+                      AND r.dateFin > :dayStart
+                    ORDER BY r.dateDebut
+                    """, Object[].class)
+                    .setParameter("salleId", key.salleId())
+                    .setParameter("dayStart", key.day().atStartOfDay())
+                    .setParameter("dayEnd", key.day().plusDays(1).atStartOfDay())
+                    .getResultList();
+
+            List<Row> rows = new ArrayList<>(results.size());
+            for (Object[] result : results) {
+                rows.add(new Row((Long) result[0], (LocalDateTime) result[1], (LocalDateTime) result[2],
+                        (Timestamp) result[3]));
+            }
+            return rows;
+        } finally {
+            em.close();
+        }
+    }
+
+    // Appelé sous lock : publie la journée chargée après rejeu des commits manqués
+    private DaySchedule install(Key key, List<Row> rows, List<Change> missed) {
+        sweepIfNewDay();
+
+        int[] starts = new int[rows.size()];
+        int[] ends = new int[rows.size()];
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            ids[i] = row.id();
+            starts[i] = DaySchedule.toEpochMinute(row.dateDebut());
+            ends[i] = DaySchedule.toEpochMinute(row.dateFin());
+
+            Tracked tracked = trackedReservations.computeIfAbsent(row.id(), id -> new Tracked());
+            if (tracked.version == null || (row.version() != null && row.version().after(tracked.version))) {
+                tracked.version = row.version();
+                tracked.lastDay = lastDayOf(row.dateFin());
+            }
+            tracked.keys.add(key);
+        }
+        DaySchedule schedule = new DaySchedule(key.salleId(), key.day(), starts, ends, ids);
+
+        for (Change change : missed) {
+            Tracked tracked = trackedReservations.get(change.reservationId());
+            if (tracked != null && isStale(change.version(), tracked.version)) {
+                continue;
+            }
+            schedule = schedule.without(change.reservationId());
+            if (tracked != null) {
+                tracked.keys.remove(key);
+            }
+            if (change.covers(key)) {
+                schedule = schedule.with(change.reservationId(), change.start(), change.end());
+                if (tracked != null) {
+                    tracked.keys.add(key);
+                }
+            }
+        }
+
+        schedules.put(key, schedule);
+        return schedule;
+    }
+
+    @Override
+    public void onSaved(Reservation reservation) {
+        apply(Change.of(reservation, true));
+    }
+
+    @Override
+    public void onUpdated(Reservation reservation) {
+        apply(Change.of(reservation, true));
+    }
+
+    @Override
+    public void onDeleted(Reservation reservation) {
+        apply(Change.of(reservation, false));
+    }
+
+    private void apply(Change change) {
+        long id = change.reservationId();
+        synchronized (lock) {
+            sweepIfNewDay();
+
+            Tracked tracked = trackedReservations.get(id);
+            if (tracked != null && isStale(change.version(), tracked.version)) {
+                return;
+            }
+            for (Loading pending : loading.values()) {
+                pending.missed.add(change);
+            }
+            if (tracked == null) {
+                tracked = new Tracked();
+                trackedReservations.put(id, tracked);
+            }
+            tracked.version = change.version();
+            tracked.lastDay = change.lastDay();
+
+            for (Key key : tracked.keys) {
+                schedules.computeIfPresent(key, (k, schedule) -> schedule.without(id));
+            }
+            tracked.keys.clear();
+            if (!change.present()) {
+                return;
+            }
+
+            for (LocalDate day = change.firstDay(); !day.isAfter(change.lastDay()); day = day.plusDays(1)) {
+                Key key = new Key(change.salleId(), day);
+                if (schedules.computeIfPresent(key, (k, schedule) -> schedule.with(id, change.start(), change.end())) != null) {
+                    tracked.keys.add(key);
+                }
+            }
+        }
+    }
+
+    // Appelé sous lock : retire les journées passées et les réservations terminées
+    private void sweepIfNewDay() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(lastSweep)) {
+            return;
+        }
+        lastSweep = today;
+        schedules.keySet().removeIf(key -> key.day().isBefore(today));
+        trackedReservations.values().removeIf(tracked -> tracked.lastDay != null && tracked.lastDay.isBefore(today));
+        for (Tracked tracked : trackedReservations.values()) {
+            tracked.keys.removeIf(key -> key.day().isBefore(today));
+        }
+    }
+
+    private static boolean isStale(Timestamp version, Timestamp lastApplied) {
+        return version != null && lastApplied != null && version.before(lastApplied);
+    }
+
+    private static LocalDate lastDayOf(LocalDateTime dateFin) {
+        return dateFin.minusNanos(1).toLocalDate();
+    }
+
+    private record Key(long salleId, LocalDate day) {
+    }
+
+    private record Row(Long id, LocalDateTime dateDebut, LocalDateTime dateFin, Timestamp version) {
+    }
+
+    private record Change(long reservationId, Timestamp version, boolean present, long salleId,
+                          int start, int end, LocalDate firstDay, LocalDate lastDay) {
+
+        static Change of(Reservation reservation, boolean present) {
+            return new Change(reservation.getId(), reservation.getVersion(), present,
+                    reservation.getSalle().getId(),
+                    DaySchedule.toEpochMinute(reservation.getDateDebut()),
+                    DaySchedule.toEpochMinute(reservation.getDateFin()),
+                    reservation.getDateDebut().toLocalDate(),
+                    lastDayOf(reservation.getDateFin()));
+        }
+
+        boolean covers(Key key) {
+            return present && salleId == key.salleId()
+                    && !key.day().isBefore(firstDay) && !key.day().isAfter(lastDay);
+        }
+    }
+
+    // Dernière version appliquée d'une réservation et journées en cache qui la contiennent
+    private static class Tracked {
+
+        private Timestamp version;
+        private LocalDate lastDay;
+        private final List<Key> keys = new ArrayList<>();
+    }
+
+    // Chargement en cours d'une journée, partagé par les lecteurs concurrents
+    private static class Loading {
+
+        private final CompletableFuture<DaySchedule> result = new CompletableFuture<>();
+        private final List<Change> missed = new ArrayList<>();
+
+        DaySchedule await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.schedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Planning immuable d'une salle pour une journée : réservations triées par
+ * début, stockées en tableaux primitifs (minutes depuis l'epoch, en heure
+ * locale). Toute modification produit une nouvelle instance.
+ */
+public final class DaySchedule {
+
+    private final long salleId;
+    private final LocalDate day;
+    private final int[] starts;
+    private final int[] ends;
+    private final long[] reservationIds;
+
+    DaySchedule(long salleId, LocalDate day, int[] starts, int[] ends, long[] reservationIds) {
+        this.salleId = salleId;
+        this.day = day;
+        this.starts = starts;
+        this.ends = ends;
+        this.reservationIds = reservationIds;
+    }
+
+    static int toEpochMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    static LocalDateTime fromEpochMinute(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    public long getSalleId() {
+        return salleId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public long reservationId(int index) {
+        return reservationIds[index];
+    }
+
+    public int startMinute(int index) {
+        return starts[index];
+    }
+
+    public int endMinute(int index) {
+        return ends[index];
+    }
+
+    public LocalDateTime start(int index) {
+        return fromEpochMinute(starts[index]);
+    }
+
+    public LocalDateTime end(int index) {
+        return fromEpochMinute(ends[index]);
+    }
+
+    public boolean contains(long reservationId) {
+        return indexOf(reservationId) >= 0;
+    }
+
+    /**
+     * Indique si le créneau est libre. Les réservations d'une salle ne se
+     * chevauchant pas, les fins sont triées comme les débuts : une recherche
+     * dichotomique suffit.
+     */
+    public boolean isFree(LocalDateTime from, LocalDateTime to) {
+        int fromMinute = toEpochMinute(from);
+        int toMinute = toEpochMinute(to);
+        int index = Arrays.binarySearch(starts, toMinute);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            while (index > 0 && starts[index - 1] == toMinute) {
+                index--;
+            }
+        }
+        return index == 0 || ends[index - 1] <= fromMinute;
+    }
+
+    DaySchedule with(long reservationId, int start, int end) {
+        DaySchedule base = without(reservationId);
+        int n = base.starts.length;
+        int position = 0;
+        while (position < n && base.starts[position] <= start) {
+            position++;
+        }
+        int[] newStarts = new int[n + 1];
+        int[] newEnds = new int[n + 1];
+        long[] newIds = new long[n + 1];
+        System.arraycopy(base.starts, 0, newStarts, 0, position);
+        System.arraycopy(base.ends, 0, newEnds, 0, position);
+        System.arraycopy(base.reservationIds, 0, newIds, 0, position);
+        newStarts[position] = start;
+        newEnds[position] = end;
+        newIds[position] = reservationId;
+        System.arraycopy(base.starts, position, newStarts, position + 1, n - position);
+        System.arraycopy(base.ends, position, newEnds, position + 1, n - position);
+        System.arraycopy(base.reservationIds, position, newIds, position + 1, n - position);
+        return new DaySchedule(salleId, day, newStarts, newEnds, newIds);
+    }
+
+    DaySchedule without(long reservationId) {
+        int index = indexOf(reservationId);
+        if (index < 0) {
+            return this;
+        }
+        int n = starts.length;
+        int[] newStarts = new int[n - 1];
+        int[] newEnds = new int[n - 1];
+        long[] newIds = new long[n - 1];
+        System.arraycopy(starts, 0, newStarts, 0, index);
+        System.arraycopy(ends, 0, newEnds, 0, index);
+        System.arraycopy(reservationIds, 0, newIds, 0, index);
+        System.arraycopy(starts, index + 1, newStarts, index, n - index - 1);
+        System.arraycopy(ends, index + 1, newEnds, index, n - index - 1);
+        System.arraycopy(reservationIds, index + 1, newIds, index, n - index - 1);
+        return new DaySchedule(salleId, day, newStarts, newEnds, newIds);
+    }
+
+    private int indexOf(long reservationId) {
+        for (int i = 0; i < reservationIds.length; i++) {
+            if (reservationIds[i] == reservationId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DaySchedule{salleId=").append(salleId)
+                .append(", day=").append(day).append(", reservations=[");
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(reservationIds[i]).append(' ').append(start(i)).append(" -> ").append(end(i));
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.service;
+
+import com.example.model.Reservation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Décorateur de {@link ReservationService} qui fait passer chaque écriture par
+ * un {@link AdmissionController}. Les lectures ne sont pas limitées.
+ * <p>
+ * Avec un {@link IdempotencyCache}, une seule requête par clé d'idempotence
+ * passe par l'admission : les doublons attendent sans détenir de permis, puis
+ * obtiennent le résultat d'origine du délégué.
+ */
+public class AdmissionControlledReservationService implements ReservationService {
+
+    private final ReservationService delegate;
+    private final AdmissionController admissionController;
+    private final IdempotencyCache idempotencyCache;
+    // Clés dont la requête d'origine attend ou détient un permis
+    private final Map<String, CompletableFuture<Void>> admitting = new ConcurrentHashMap<>();
+
+    public AdmissionControlledReservationService(ReservationService delegate, AdmissionController admissionController) {
+        this(delegate, admissionController, null);
+    }
+
+    /**
+     * @param idempotencyCache cache du délégué : un doublon, connu ou dont l'original
+     *                         attend encore son admission, ne détient jamais de permis
+     *                         et reçoit le résultat d'origine
+     */
+    public AdmissionControlledReservationService(ReservationService delegate, AdmissionController admissionController,
+                                                 IdempotencyCache idempotencyCache) {
+        this.delegate = delegate;
+        this.admissionController = admissionController;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    @Override
+    public boolean hasOverlap(Reservation reservation) {
+        return delegate.hasOverlap(reservation);
+    }
+
+    @Override
+    public Reservation save(Reservation reservation) {
+        try (AdmissionController.Permit permit = admissionController.acquire(salleIdOf(reservation))) {
+            return delegate.save(reservation);
+        }
+    }
+
+    @Override
+    public Reservation save(Reservation reservation, String idempotencyKey) {
+        return admitOnce(reservation, idempotencyKey, () -> delegate.save(reservation, idempotencyKey));
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id, FetchPlan fetchPlan) {
+        return delegate.findById(id, fetchPlan);
+    }
+
+    @Override
+    public List<Reservation> findAllById(Collection<Long> ids, FetchPlan fetchPlan) {
+        return delegate.findAllById(ids, fetchPlan);
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        try (AdmissionController.Permit permit = admissionController.acquire(salleIdOf(reservation))) {
+            delegate.update(reservation);
+        }
+    }
+
+    @Override
+    public void update(Reservation reservation, String idempotencyKey) {
+        admitOnce(reservation, idempotencyKey, () -> {
+            delegate.update(reservation, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Reservation reservation) {
+        try (AdmissionController.Permit permit = admissionController.acquire(salleIdOf(reservation))) {
+            delegate.delete(reservation);
+        }
+    }
+
+    private <T> T admitOnce(Reservation reservation, String idempotencyKey, Supplier<T> write) {
+        if (idempotencyKey == null || idempotencyCache == null) {
+            try (AdmissionController.Permit permit = admissionController.acquire(salleIdOf(reservation))) {
+                return write.get();
+            }
+        }
+        while (true) {
+            if (idempotencyCache.isKnown(idempotencyKey)) {
+                // Doublon : le délégué attend ou relit le résultat, sans permis
+                return write.get();
+            }
+            CompletableFuture<Void> admitted = new CompletableFuture<>();
+            CompletableFuture<Void> original = admitting.putIfAbsent(idempotencyKey, admitted);
+            if (original == null) {
+                try (AdmissionController.Permit permit = admissionController.acquire(salleIdOf(reservation))) {
+                    return write.get();
+                } finally {
+                    admitting.remove(idempotencyKey, admitted);
+                    admitted.complete(null);
+                }
+            }
+            awaitOriginal(idempotencyKey, original);
+        }
+    }
+
+    private void awaitOriginal(String idempotencyKey, CompletableFuture<Void> original) {
+        try {
+            original.get(idempotencyCache.getAwaitTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Requête d'origine toujours en attente d'admission pour la clé "
+                    + idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interruption pendant l'attente de la requête d'origine", e);
+        }
+    }
+
+    private static Long salleIdOf(Reservation reservation) {
+        return reservation.getSalle() != null ? reservation.getSalle().getId() : null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.service;
+
+import com.example.monitoring.ContentionTracker;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contrôle d'admission des écritures : un nombre borné d'écrivains simultanés
+ * par salle (sémaphores répartis en bandes), une file d'attente bornée par
+ * salle et un plafond global aligné sur la taille du pool de connexions.
+ * Lorsque la file est pleine, la requête est rejetée immédiatement avec un
+ * délai conseillé plutôt que d'occuper une connexion.
+ * <p>
+ * Un écrivain n'attend jamais l'un des deux sémaphores en détenant l'autre :
+ * un plafond global saturé ne bloque pas les salles de la bande, et une salle
+ * chargée ne retient pas de permis global.
+ */
+public class AdmissionController {
+
+    private static final int DEFAULT_POOL_SIZE = 20;
+    // Fraction du pool laissée aux lectures, chargements de planning et à l'archivage
+    private static final int RESERVED_POOL_FRACTION = 4;
+
+    private final Semaphore[] stripes;
+    private final AtomicInteger[] waiting;
+    private final int permitsPerRoom;
+    private final int maxQueuePerRoom;
+    private final long maxWaitMillis;
+    private final Semaphore global;
+    private final ContentionTracker contentionTracker;
+
+    // Moyenne glissante de la durée d'occupation d'un permis, pour le délai conseillé
+    private volatile long avgHoldMillis = 10;
+
+    public AdmissionController(int stripeCount, int permitsPerRoom, int maxQueuePerRoom,
+                               long maxWaitMillis, int globalPermits, ContentionTracker contentionTracker) {
+        this.stripes = new Semaphore[stripeCount];
+        this.waiting = new AtomicInteger[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Semaphore(permitsPerRoom, true);
+            waiting[i] = new AtomicInteger();
+        }
+        this.permitsPerRoom = permitsPerRoom;
+        this.maxQueuePerRoom = maxQueuePerRoom;
+        this.maxWaitMillis = maxWaitMillis;
+        this.global = new Semaphore(globalPermits, true);
+        this.contentionTracker = contentionTracker;
+    }
+
+    /**
+     * Construit un contrôleur dont le plafond global est
+     * {@code hibernate.connection.pool_size} moins une réserve (un quart du
+     * pool, au moins 2 connexions), pour que les écrivains ne privent jamais
+     * les lectures de connexions.
+     */
+    public static AdmissionController forPool(EntityManagerFactory emf) {
+        Object property = emf.getProperties().get("hibernate.connection.pool_size");
+        int poolSize = property != null ? Integer.parseInt(property.toString()) : DEFAULT_POOL_SIZE;
+        int reserved = Math.max(2, poolSize / RESERVED_POOL_FRACTION);
+        int globalPermits = Math.max(1, poolSize - reserved);
+        return new AdmissionController(64, 2, 16, 500, globalPermits, ContentionTracker.shared());
+    }
+
+    /**
+     * Réserve un créneau d'écriture pour la salle, ou lève
+     * {@link AdmissionRejectedException}.
+     */
+    public Permit acquire(Long salleId) {
+        int stripe = stripeOf(salleId);
+        Semaphore room = stripes[stripe];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        try {
+            while (true) {
+                acquireRoom(salleId, stripe, deadline);
+                // Permis de salle détenu : le plafond global est seulement essayé, jamais attendu
+                if (global.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                    return new Permit(room);
+                }
+                room.release();
+                if (!global.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new AdmissionRejectedException("Plafond global de connexions atteint", retryAfter(1));
+                }
+                // Permis global détenu : même règle pour la salle, sinon on le rend et on refait la file
+                boolean admitted;
+                try {
+                    admitted = room.tryAcquire(0, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    global.release();
+                    throw e;
+                }
+                if (admitted) {
+                    return new Permit(room);
+                }
+                global.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("Interruption pendant l'attente d'admission", retryAfter(1));
+        }
+    }
+
+    // Prend un permis de la salle avant deadline, en passant par sa file d'attente bornée
+    private void acquireRoom(Long salleId, int stripe, long deadline) throws InterruptedException {
+        Semaphore room = stripes[stripe];
+
+        // tryAcquire(0, ...) respecte l'équité : pas de passe-droit devant la file
+        if (room.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return;
+        }
+
+        AtomicInteger queue = waiting[stripe];
+        int queued = queue.incrementAndGet();
+        try {
+            if (queued > maxQueuePerRoom) {
+                throw new AdmissionRejectedException(
+                        "Trop d'écritures en attente sur la salle " + salleId, retryAfter(queued));
+            }
+            long start = System.nanoTime();
+            if (!room.tryAcquire(deadline - start, TimeUnit.NANOSECONDS)) {
+                throw new AdmissionRejectedException(
+                        "Délai d'attente dépassé pour la salle " + salleId, retryAfter(queued));
+            }
+            contentionTracker.recordWait(null, salleId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            queue.decrementAndGet();
+        }
+    }
+
+    private int stripeOf(Long salleId) {
+        if (salleId == null) {
+            return 0;
+        }
+        int h = Long.hashCode(salleId);
+        h ^= h >>> 16;
+        return Math.floorMod(h, stripes.length);
+    }
+
+    private long retryAfter(int queued) {
+        return Math.max(1, avgHoldMillis * queued / permitsPerRoom);
+    }
+
+    public class Permit implements AutoCloseable {
+
+        private final Semaphore room;
+        private final long start = System.nanoTime();
+
+        private Permit(Semaphore room) {
+            this.room = room;
+        }
+
+        @Override
+        public void close() {
+            long held = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            avgHoldMillis = (avgHoldMillis * 7 + held) / 8;
+            global.release();
+            room.release();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.service;
+
+/**
+ * Levée lorsqu'une écriture est refusée par le contrôle d'admission
+ * (file d'attente de la salle pleine ou délai d'attente dépassé).
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public AdmissionRejectedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Délai conseillé avant de soumettre à nouveau la requête.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
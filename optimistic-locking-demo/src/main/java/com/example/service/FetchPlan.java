@@ -0,0 +1,23 @@
+package com.example.service;
+
+/**
+ * Associations à charger avec une réservation, dans la même requête
+ * (graphes nommés déclarés sur {@link com.example.model.Reservation}).
+ */
+public enum FetchPlan {
+
+    BASIC(null),
+    WITH_SALLE("Reservation.salle"),
+    WITH_USER("Reservation.utilisateur"),
+    WITH_SALLE_AND_USER("Reservation.salleEtUtilisateur");
+
+    private final String graphName;
+
+    FetchPlan(String graphName) {
+        this.graphName = graphName;
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+}
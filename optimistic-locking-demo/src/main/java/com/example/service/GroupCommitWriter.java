@@ -0,0 +1,287 @@
+package com.example.service;
+
+import com.example.model.Reservation;
+import com.example.monitoring.PersistenceMetrics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écrivain optionnel à « group commit » : les écritures indépendantes soumises
+ * par plusieurs threads sont regroupées pendant au plus {@code maxDelayMicros}
+ * ou jusqu'à {@code maxBatchSize} opérations, puis appliquées dans une seule
+ * transaction.
+ * <p>
+ * Chaque opération est vérifiée (chevauchement) puis flushée individuellement :
+ * un chevauchement n'échoue que le futur concerné, et seulement une fois le lot
+ * committé. Une erreur de persistance (conflit de version...) invalide la
+ * transaction : le lot est annulé, seule l'opération fautive reçoit l'erreur et
+ * les autres sont réessayées une fois ensemble, chevauchements revérifiés. Si ce
+ * second essai échoue aussi, elles sont rejouées une par une via
+ * {@link ReservationServiceImpl}.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    private final EntityManagerFactory emf;
+    private final ReservationServiceImpl reservationService;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final PersistenceMetrics metrics;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+    private volatile boolean running = true;
+
+    public GroupCommitWriter(EntityManagerFactory emf, ReservationServiceImpl reservationService,
+                             int maxBatchSize, long maxDelayMicros) {
+        this(emf, reservationService, maxBatchSize, maxDelayMicros, PersistenceMetrics.shared());
+    }
+
+    public GroupCommitWriter(EntityManagerFactory emf, ReservationServiceImpl reservationService,
+                             int maxBatchSize, long maxDelayMicros, PersistenceMetrics metrics) {
+        this.emf = emf;
+        this.reservationService = reservationService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.metrics = metrics;
+        this.flusher = new Thread(this::run, "group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public CompletableFuture<Reservation> save(Reservation reservation) {
+        return submit(new PendingWrite(reservation, false));
+    }
+
+    public CompletableFuture<Void> update(Reservation reservation) {
+        return submit(new PendingWrite(reservation, true)).thenApply(merged -> null);
+    }
+
+    private CompletableFuture<Reservation> submit(PendingWrite write) {
+        if (!isAccepting()) {
+            write.result.completeExceptionally(new IllegalStateException("GroupCommitWriter fermé"));
+            return write.result;
+        }
+        queue.add(write);
+        // Fermeture ou arrêt concurrent : si personne n'a pris l'écriture, elle ne sera jamais traitée
+        if (!isAccepting() && queue.remove(write)) {
+            write.result.completeExceptionally(new IllegalStateException("GroupCommitWriter fermé"));
+        }
+        return write.result;
+    }
+
+    private boolean isAccepting() {
+        return running && flusher.isAlive();
+    }
+
+    /**
+     * Nombre de transactions committées par le writer (hors rejeu individuel).
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * Nombre de lots annulés après une erreur de persistance.
+     */
+    public long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxDelayNanos;
+                    while (batch.size() < maxBatchSize) {
+                        PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    flush(batch);
+                } catch (InterruptedException e) {
+                    running = false;
+                    fail(batch, new IllegalStateException("GroupCommitWriter interrompu", e));
+                } catch (RuntimeException | Error e) {
+                    fail(batch, e);
+                    if (e instanceof Error error) {
+                        throw error;
+                    }
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            // Flusher arrêté (interruption, Error) : plus rien ne videra la file
+            running = false;
+            drain("GroupCommitWriter arrêté");
+        }
+    }
+
+    // Les écritures déjà terminées (flush partiel) gardent leur résultat
+    private static void fail(List<PendingWrite> writes, Throwable cause) {
+        for (PendingWrite write : writes) {
+            write.result.completeExceptionally(cause);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        try (PersistenceMetrics.Timer timer = metrics.start("groupCommit.flush")) {
+            Attempt attempt = apply(batch);
+            if (attempt.failure == null) {
+                complete(attempt);
+                return;
+            }
+            fallbackCount.incrementAndGet();
+            List<PendingWrite> remaining = new ArrayList<>(batch);
+            resetInserts(remaining);
+            if (attempt.failed != null) {
+                // Seul l'appelant fautif échoue, le reste du lot est réessayé une fois
+                attempt.failed.result.completeExceptionally(attempt.failure);
+                remaining.remove(attempt.failed);
+                Attempt retry = apply(remaining);
+                if (retry.failure == null) {
+                    complete(retry);
+                    return;
+                }
+                resetInserts(remaining);
+            }
+            replayIndividually(remaining);
+        }
+    }
+
+    // Applique le lot dans une transaction ; aucun futur n'est complété ici
+    private Attempt apply(List<PendingWrite> batch) {
+        Attempt attempt = new Attempt();
+        PendingWrite current = null;
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (PendingWrite write : batch) {
+                current = write;
+                // Peut dépendre d'une écriture du même lot : ne vaut que si le lot est committé
+                if (reservationService.countOverlaps(em, write.reservation) > 0) {
+                    attempt.rejected.add(write);
+                    continue;
+                }
+                if (write.update) {
+                    write.merged = em.merge(write.reservation);
+                } else {
+                    em.persist(write.reservation);
+                }
+                // Flush par opération : l'échec éventuel est attribué à la bonne écriture
+                em.flush();
+                attempt.applied.add(write);
+            }
+            current = null;
+            em.getTransaction().commit();
+            commitCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            attempt.failed = current;
+            attempt.failure = e;
+        } finally {
+            em.close();
+        }
+        return attempt;
+    }
+
+    private void complete(Attempt attempt) {
+        for (PendingWrite write : attempt.rejected) {
+            write.result.completeExceptionally(
+                    new IllegalArgumentException("Une autre réservation existe déjà sur cette période !"));
+        }
+        for (PendingWrite write : attempt.applied) {
+            if (write.update) {
+                reservationService.fireUpdated(write.merged);
+                write.result.complete(write.merged);
+            } else {
+                reservationService.fireSaved(write.reservation);
+                write.result.complete(write.reservation);
+            }
+        }
+    }
+
+    // Identifiant et version attribués par un INSERT annulé
+    private static void resetInserts(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            if (!write.update) {
+                write.reservation.setId(null);
+                write.reservation.setVersion(null);
+            }
+        }
+    }
+
+    // Dernier recours : chaque écriture dans sa propre transaction
+    private void replayIndividually(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            try {
+                if (write.update) {
+                    reservationService.update(write.reservation);
+                    write.result.complete(null);
+                } else {
+                    write.result.complete(reservationService.save(write.reservation));
+                }
+            } catch (RuntimeException e) {
+                write.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain("GroupCommitWriter fermé");
+    }
+
+    private void drain(String message) {
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            write.result.completeExceptionally(new IllegalStateException(message));
+        }
+    }
+
+    private static class PendingWrite {
+
+        private final Reservation reservation;
+        private final boolean update;
+        private final CompletableFuture<Reservation> result = new CompletableFuture<>();
+        private Reservation merged;
+
+        PendingWrite(Reservation reservation, boolean update) {
+            this.reservation = reservation;
+            this.update = update;
+        }
+    }
+
+    private static class Attempt {
+
+        private final List<PendingWrite> applied = new ArrayList<>();
+        private final List<PendingWrite> rejected = new ArrayList<>();
+        private PendingWrite failed;
+        private RuntimeException failure;
+    }
+}
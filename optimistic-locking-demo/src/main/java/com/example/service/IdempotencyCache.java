@@ -0,0 +1,171 @@
+package com.example.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Résultats récents des requêtes idempotentes, en mémoire : taille bornée et
+ * expiration après {@code ttl}. Le premier appelant d'une clé devient
+ * propriétaire et exécute la requête ; les doublons concurrents attendent son
+ * résultat (au plus {@code awaitTimeout}) au lieu de la rejouer. Un échec n'est
+ * pas mémorisé, pour qu'un nouvel essai du client puisse aboutir.
+ * <p>
+ * Chaque clé est liée à l'empreinte de la requête d'origine (opération, salle,
+ * utilisateur, dates, motif) : la réutiliser pour une autre requête lève
+ * {@link IllegalArgumentException}.
+ */
+public class IdempotencyCache {
+
+    /**
+     * Durée de vie par défaut d'une clé, en mémoire comme dans {@code idempotency_keys}.
+     */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long awaitTimeoutNanos;
+    private final Map<String, Claim> entries = new ConcurrentHashMap<>();
+    // Ordre d'insertion = ordre d'expiration, la durée de vie étant la même pour tous
+    private final Queue<Claim> order = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Duration.ofSeconds(5));
+    }
+
+    public IdempotencyCache(int maxEntries, Duration ttl, Duration awaitTimeout) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.awaitTimeoutNanos = awaitTimeout.toNanos();
+    }
+
+    public Duration getAwaitTimeout() {
+        return Duration.ofNanos(awaitTimeoutNanos);
+    }
+
+    /**
+     * Indique si la clé est connue (requête en cours ou terminée), sans attendre.
+     */
+    public boolean isKnown(String key) {
+        Claim existing = entries.get(key);
+        return existing != null && !existing.isExpired();
+    }
+
+    public Claim claim(String key, String fingerprint) {
+        evictExpired();
+        Claim fresh = new Claim(key, fingerprint, System.nanoTime());
+        while (true) {
+            Claim existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                order.add(fresh);
+                trimToSize();
+                return fresh;
+            }
+            if (!existing.isExpired()) {
+                checkFingerprint(key, existing.fingerprint, fingerprint);
+                return existing.asWaiter();
+            }
+            entries.remove(key, existing);
+        }
+    }
+
+    static void checkFingerprint(String key, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalArgumentException("Clé d'idempotence " + key + " déjà utilisée pour une autre requête");
+        }
+    }
+
+    private void evictExpired() {
+        Claim head;
+        while ((head = order.peek()) != null && head.isExpired()) {
+            if (order.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    private void trimToSize() {
+        while (entries.size() > maxEntries) {
+            Claim head = order.poll();
+            if (head == null) {
+                return;
+            }
+            entries.remove(head.key, head);
+        }
+    }
+
+    public class Claim {
+
+        private final String key;
+        private final String fingerprint;
+        private final long createdNanos;
+        private final CompletableFuture<Long> result;
+        private final boolean owner;
+
+        private Claim(String key, String fingerprint, long createdNanos) {
+            this(key, fingerprint, createdNanos, new CompletableFuture<>(), true);
+        }
+
+        private Claim(String key, String fingerprint, long createdNanos, CompletableFuture<Long> result,
+                      boolean owner) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+            this.result = result;
+            this.owner = owner;
+        }
+
+        private Claim asWaiter() {
+            return new Claim(key, fingerprint, createdNanos, result, false);
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - createdNanos > ttlNanos;
+        }
+
+        /**
+         * Indique si l'appelant doit exécuter la requête, ou attendre le résultat
+         * de celle déjà en cours ou terminée.
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        public void complete(Long reservationId) {
+            result.complete(reservationId);
+        }
+
+        public void fail(RuntimeException e) {
+            entries.remove(key, this);
+            result.completeExceptionally(e);
+        }
+
+        /**
+         * Attend le résultat du propriétaire et retourne l'identifiant de la
+         * réservation concernée, ou relance son exception. Lève
+         * {@link IllegalStateException} si la requête d'origine n'a pas abouti
+         * dans le délai d'attente.
+         */
+        public Long await() {
+            try {
+                return result.get(awaitTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Requête d'origine toujours en cours pour la clé " + key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interruption pendant l'attente de la requête d'origine", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.service;
+
+import com.example.model.ArchivedReservation;
+import com.example.model.Reservation;
+import com.example.monitoring.PersistenceMetrics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Tâche de maintenance qui déplace les réservations terminées avant une date
+ * limite vers {@code reservations_archive}, puis les supprime.
+ * <p>
+ * Le travail est découpé en petits lots parcourus par clé ({@code id}
+ * croissant), chacun dans une transaction courte, avec une pause entre les
+ * lots. La suppression vérifie la version : si un écrivain a modifié une ligne
+ * entre-temps, c'est l'archivage qui cède (rollback du lot puis nouvel essai).
+ * <p>
+ * La date limite doit laisser une marge ({@link #DEFAULT_GRACE_PERIOD}, un jour)
+ * après la fin des réservations : un écrivain peut encore détenir l'entité
+ * détachée d'une réunion tout juste terminée (pour la prolonger, par exemple),
+ * et sous Hibernate 5 le {@code merge()} d'une ligne supprimée la réinsère sous
+ * un nouvel id au lieu d'échouer. La réservation existerait alors deux fois.
+ * <p>
+ * La même tâche purge, par lots, les clés d'idempotence plus anciennes que leur
+ * durée de rétention.
+ */
+public class ReservationArchiver implements AutoCloseable {
+
+    /**
+     * Marge conseillée entre la fin d'une réservation et son archivage.
+     */
+    public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofDays(1);
+
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final PersistenceMetrics metrics;
+    private final Duration idempotencyRetention;
+    private final List<ReservationCommitListener> commitListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    public ReservationArchiver(EntityManagerFactory emf, int chunkSize, long pauseMillis) {
+        this(emf, chunkSize, pauseMillis, PersistenceMetrics.shared());
+    }
+
+    public ReservationArchiver(EntityManagerFactory emf, int chunkSize, long pauseMillis, PersistenceMetrics metrics) {
+        this(emf, chunkSize, pauseMillis, metrics, IdempotencyCache.DEFAULT_TTL);
+    }
+
+    /**
+     * @param idempotencyRetention durée de conservation des clés d'idempotence,
+     *                             au moins celle du cache en mémoire
+     */
+    public ReservationArchiver(EntityManagerFactory emf, int chunkSize, long pauseMillis, PersistenceMetrics metrics,
+                               Duration idempotencyRetention) {
+        this.emf = emf;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.metrics = metrics;
+        this.idempotencyRetention = idempotencyRetention;
+    }
+
+    /**
+     * Les écouteurs reçoivent {@code onDeleted} pour chaque réservation archivée.
+     */
+    public void addCommitListener(ReservationCommitListener listener) {
+        commitListeners.add(listener);
+    }
+
+    /**
+     * Archive toutes les réservations terminées avant {@code cutoff}.
+     *
+     * @return nombre de réservations archivées
+     */
+    public long archiveBefore(LocalDateTime cutoff) {
+        long lastId = 0;
+        long archived = 0;
+        int attempts = 0;
+        long start = System.nanoTime();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            Chunk chunk;
+            try (PersistenceMetrics.Timer timer = metrics.start("archive.chunk")) {
+                chunk = archiveChunk(cutoff, lastId);
+            } catch (PersistenceException e) {
+                attempts++;
+                System.out.println("Archivage : conflit sur le lot après id=" + lastId
+                        + " (tentative " + attempts + ") -> " + e.getMessage());
+                if (attempts < MAX_CHUNK_ATTEMPTS) {
+                    pause();
+                    continue;
+                }
+                // Lot abandonné pour ce passage, il sera repris au prochain
+                lastId = skipChunk(cutoff, lastId);
+                attempts = 0;
+                if (lastId < 0) {
+                    break;
+                }
+                continue;
+            }
+            attempts = 0;
+
+            if (chunk.size() == 0) {
+                break;
+            }
+            archived += chunk.size();
+            lastId = chunk.lastId();
+
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Archivage : %d réservation(s) archivée(s), %.1f lignes/s%n",
+                    archived, archived / Math.max(seconds, 0.001));
+            pause();
+        }
+        return archived;
+    }
+
+    private Chunk archiveChunk(LocalDateTime cutoff, long lastId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Reservation> chunk = em.createQuery("""
+                    SELECT r FROM Reservation r
+                    WHERE r.dateFin < :cutoff
+                      AND r.id > :lastId
+                    ORDER BY r.id
+                    """, Reservation.class)
+                    .setParameter("cutoff", cutoff)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(chunkSize)
+                    .getResultList();
+
+            LocalDateTime now = LocalDateTime.now();
+            for (Reservation reservation : chunk) {
+                em.persist(new ArchivedReservation(reservation, now));
+                em.remove(reservation);
+            }
+            em.getTransaction().commit();
+            for (Reservation reservation : chunk) {
+                commitListeners.forEach(listener -> listener.onDeleted(reservation));
+            }
+            return new Chunk(chunk.size(), chunk.isEmpty() ? lastId : chunk.get(chunk.size() - 1).getId());
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Supprime les clés d'idempotence créées avant {@code before}, par lots de
+     * {@code chunkSize} clés, chacun dans sa propre transaction.
+     *
+     * @return nombre de clés supprimées
+     */
+    public long purgeIdempotencyKeys(LocalDateTime before) {
+        long purged = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int deleted;
+            try (PersistenceMetrics.Timer timer = metrics.start("archive.idempotency")) {
+                deleted = purgeIdempotencyChunk(before);
+            }
+            if (deleted == 0) {
+                break;
+            }
+            purged += deleted;
+            System.out.println("Archivage : " + purged + " clé(s) d'idempotence purgée(s)");
+            pause();
+        }
+        return purged;
+    }
+
+    private int purgeIdempotencyChunk(LocalDateTime before) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<String> keys = em.createQuery("""
+                    SELECT k.idempotencyKey FROM IdempotencyRecord k
+                    WHERE k.createdAt < :before
+                    ORDER BY k.idempotencyKey
+                    """, String.class)
+                    .setParameter("before", before)
+                    .setMaxResults(chunkSize)
+                    .getResultList();
+            int deleted = keys.isEmpty() ? 0 : em.createQuery(
+                            "DELETE FROM IdempotencyRecord k WHERE k.idempotencyKey IN :keys")
+                    .setParameter("keys", keys)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            return deleted;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    // Dernier id du lot suivant lastId, ou -1 s'il n'y en a plus
+    private long skipChunk(LocalDateTime cutoff, long lastId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Long> ids = em.createQuery("""
+                    SELECT r.id FROM Reservation r
+                    WHERE r.dateFin < :cutoff
+                      AND r.id > :lastId
+                    ORDER BY r.id
+                    """, Long.class)
+                    .setParameter("cutoff", cutoff)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(chunkSize)
+                    .getResultList();
+            return ids.isEmpty() ? -1 : ids.get(ids.size() - 1);
+        } finally {
+            em.close();
+        }
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lance l'archivage (et la purge des clés d'idempotence) en arrière-plan à
+     * intervalle régulier. {@code cutoff} doit inclure la marge, par exemple
+     * {@code now().minus(DEFAULT_GRACE_PERIOD)}.
+     */
+    public synchronized void start(Supplier<LocalDateTime> cutoff, long period, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archiveBefore(cutoff.get());
+                purgeIdempotencyKeys(LocalDateTime.now().minus(idempotencyRetention));
+            } catch (RuntimeException e) {
+                System.out.println("Archivage : erreur -> " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Arrête l'archivage et attend (10 s au plus) la fin du lot en cours, pour
+     * que la fabrique puisse être fermée sans transaction en vol.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    System.out.println("Archivage : arrêt non terminé après " + CLOSE_TIMEOUT_SECONDS + " s");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    private record Chunk(int size, long lastId) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.service;
+
+import com.example.model.Reservation;
+
+/**
+ * Notifié par {@link ReservationServiceImpl} après le commit d'une écriture.
+ * Les méthodes sont appelées sur le thread de l'écrivain : elles doivent
+ * rester courtes et ne pas lever d'exception.
+ */
+public interface ReservationCommitListener {
+
+    default void onSaved(Reservation reservation) {
+    }
+
+    default void onUpdated(Reservation reservation) {
+    }
+
+    default void onDeleted(Reservation reservation) {
+    }
+}
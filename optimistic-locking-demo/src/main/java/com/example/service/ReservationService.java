@@ -1,13 +1,19 @@
 package com.example.service;
 
 import com.example.model.Reservation;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ReservationService {
 
     boolean hasOverlap(Reservation reservation);
     Reservation save(Reservation reservation);
+    Reservation save(Reservation reservation, String idempotencyKey);
     Optional<Reservation> findById(Long id);
+    Optional<Reservation> findById(Long id, FetchPlan fetchPlan);
+    List<Reservation> findAllById(Collection<Long> ids, FetchPlan fetchPlan);
     void update(Reservation reservation);
+    void update(Reservation reservation, String idempotencyKey);
     void delete(Reservation reservation);
 }
\ No newline at end of file
@@ -1,23 +1,82 @@
 package com.example.service;
 
+import com.example.model.IdempotencyRecord;
 import com.example.model.Reservation;
+import com.example.monitoring.PersistenceMetrics;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 public class ReservationServiceImpl implements ReservationService {
 
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
     private final EntityManagerFactory emf;
+    private final PersistenceMetrics metrics;
+    private final IdempotencyCache idempotencyCache;
+    private final List<ReservationCommitListener> commitListeners = new CopyOnWriteArrayList<>();
 
     public ReservationServiceImpl(EntityManagerFactory emf) {
+        this(emf, PersistenceMetrics.shared());
+    }
+
+    public ReservationServiceImpl(EntityManagerFactory emf, PersistenceMetrics metrics) {
+        this(emf, metrics, new IdempotencyCache(10_000, IdempotencyCache.DEFAULT_TTL));
+    }
+
+    public ReservationServiceImpl(EntityManagerFactory emf, PersistenceMetrics metrics,
+                                  IdempotencyCache idempotencyCache) {
         this.emf = emf;
+        this.metrics = metrics;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    public IdempotencyCache getIdempotencyCache() {
+        return idempotencyCache;
+    }
+
+    public void addCommitListener(ReservationCommitListener listener) {
+        commitListeners.add(listener);
+    }
+
+    void fireSaved(Reservation reservation) {
+        commitListeners.forEach(listener -> listener.onSaved(reservation));
+    }
+
+    void fireUpdated(Reservation reservation) {
+        commitListeners.forEach(listener -> listener.onUpdated(reservation));
     }
 
     @Override
     public boolean hasOverlap(Reservation reservation) {
-        EntityManager em = emf.createEntityManager();
+        try (PersistenceMetrics.Timer timer = metrics.start("hasOverlap")) {
+            return countOverlaps(reservation) > 0;
+        }
+    }
+
+    private long countOverlaps(Reservation reservation) {
+        EntityManager em = createEntityManager("hasOverlap");
         try {
-            Long count = em.createQuery("""
+            return countOverlaps(em, reservation);
+        } finally {
+            em.close();
+        }
+    }
+
+    // Utilisable dans une transaction en cours (voit alors ses écritures non committées)
+    long countOverlaps(EntityManager em, Reservation reservation) {
+        Long count = em.createQuery("""
             SELECT COUNT(r) FROM Reservation r
             WHERE r.salle = :salle
               AND r.id <> :id
@@ -25,36 +84,65 @@ public class ReservationServiceImpl implements ReservationService {
                     (r.dateDebut < :dateFin AND r.dateFin > :dateDebut)
                   )
             """, Long.class)
-                    .setParameter("salle", reservation.getSalle())
-                    .setParameter("id", reservation.getId() == null ? -1L : reservation.getId())
-                    .setParameter("dateDebut", reservation.getDateDebut())
-                    .setParameter("dateFin", reservation.getDateFin())
-                    .getSingleResult();
+                .setParameter("salle", reservation.getSalle())
+                .setParameter("id", reservation.getId() == null ? -1L : reservation.getId())
+                .setParameter("dateDebut", reservation.getDateDebut())
+                .setParameter("dateFin", reservation.getDateFin())
+                .getSingleResult();
 
-            return count > 0;
-        } finally {
-            em.close();
-        }
+        return count;
     }
 
 
     @Override
     public Reservation save(Reservation reservation) {
+        return save(reservation, null);
+    }
+
+    @Override
+    public Reservation save(Reservation reservation, String idempotencyKey) {
+        try (PersistenceMetrics.Timer timer = metrics.start("save")) {
+            if (idempotencyKey == null) {
+                return insert(reservation, null, null);
+            }
+
+            String fingerprint = fingerprint("save", reservation);
+            Long id = deduplicate(idempotencyKey, "save", fingerprint,
+                    () -> insert(reservation, idempotencyKey, fingerprint).getId());
+            if (id.equals(reservation.getId())) {
+                return reservation;
+            }
+            return findById(id)
+                    .orElseThrow(() -> new IllegalStateException("La réservation d'origine n'existe plus : " + id));
+        }
+    }
+
+    private Reservation insert(Reservation reservation, String idempotencyKey, String fingerprint) {
 
         if (hasOverlap(reservation)) {
             throw new IllegalArgumentException("Une autre réservation existe déjà sur cette période !");
         }
 
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = createEntityManager("save");
         try {
             em.getTransaction().begin();
             em.persist(reservation);
-            em.getTransaction().commit();
+            if (idempotencyKey != null) {
+                em.persist(new IdempotencyRecord(idempotencyKey, "save", reservation.getId(), fingerprint,
+                        LocalDateTime.now()));
+            }
+            commit(em, "save");
+            fireSaved(reservation);
             return reservation;
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
             }
+            if (idempotencyKey != null) {
+                // L'identifiant attribué par l'INSERT annulé ne doit pas être renvoyé
+                reservation.setId(null);
+                reservation.setVersion(null);
+            }
             throw e;
         } finally {
             em.close();
@@ -65,27 +153,84 @@ public class ReservationServiceImpl implements ReservationService {
 
     @Override
     public Optional<Reservation> findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            Reservation reservation = em.find(Reservation.class, id);
-            return Optional.ofNullable(reservation);
-        } finally {
-            em.close();
+        return findById(id, FetchPlan.BASIC);
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id, FetchPlan fetchPlan) {
+        try (PersistenceMetrics.Timer timer = metrics.start("findById")) {
+            EntityManager em = createEntityManager("findById");
+            try {
+                Reservation reservation = fetchPlan.getGraphName() == null
+                        ? em.find(Reservation.class, id)
+                        : em.find(Reservation.class, id,
+                                Map.of(FETCH_GRAPH_HINT, em.getEntityGraph(fetchPlan.getGraphName())));
+                return Optional.ofNullable(reservation);
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    @Override
+    public List<Reservation> findAllById(Collection<Long> ids, FetchPlan fetchPlan) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        try (PersistenceMetrics.Timer timer = metrics.start("findAllById")) {
+            EntityManager em = createEntityManager("findAllById");
+            try {
+                // Une seule requête IN au lieu d'un find par identifiant
+                TypedQuery<Reservation> query = em.createQuery(
+                        "SELECT r FROM Reservation r WHERE r.id IN :ids ORDER BY r.id", Reservation.class)
+                        .setParameter("ids", ids);
+                if (fetchPlan.getGraphName() != null) {
+                    query.setHint(FETCH_GRAPH_HINT, em.getEntityGraph(fetchPlan.getGraphName()));
+                }
+                return query.getResultList();
+            } finally {
+                em.close();
+            }
         }
     }
 
     @Override
     public void update(Reservation reservation) {
+        update(reservation, null);
+    }
+
+    @Override
+    public void update(Reservation reservation, String idempotencyKey) {
+        try (PersistenceMetrics.Timer timer = metrics.start("update")) {
+            if (idempotencyKey == null) {
+                modify(reservation, null, null);
+                return;
+            }
+
+            String fingerprint = fingerprint("update", reservation);
+            deduplicate(idempotencyKey, "update", fingerprint, () -> {
+                modify(reservation, idempotencyKey, fingerprint);
+                return reservation.getId();
+            });
+        }
+    }
+
+    private void modify(Reservation reservation, String idempotencyKey, String fingerprint) {
 
         if (hasOverlap(reservation)) {
             throw new IllegalArgumentException("Une autre réservation existe déjà sur cette période !");
         }
 
-        EntityManager em = emf.createEntityManager();
+        EntityManager em = createEntityManager("update");
         try {
             em.getTransaction().begin();
-            em.merge(reservation);
-            em.getTransaction().commit();
+            Reservation merged = em.merge(reservation);
+            if (idempotencyKey != null) {
+                em.persist(new IdempotencyRecord(idempotencyKey, "update", reservation.getId(), fingerprint,
+                        LocalDateTime.now()));
+            }
+            commit(em, "update");
+            fireUpdated(merged);
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
@@ -96,26 +241,117 @@ public class ReservationServiceImpl implements ReservationService {
         }
     }
 
-    @Override
-    public void delete(Reservation reservation) {
-        EntityManager em = emf.createEntityManager();
+    /**
+     * Exécute {@code action} une seule fois par clé d'idempotence et retourne
+     * l'identifiant de la réservation concernée. Un doublon reçoit le résultat
+     * mémorisé (en mémoire, sinon dans {@code idempotency_keys}) ; un doublon
+     * concurrent attend la requête en cours. Une clé déjà liée à une autre
+     * opération ou à une autre empreinte lève {@link IllegalArgumentException}.
+     */
+    private Long deduplicate(String idempotencyKey, String operation, String fingerprint, Supplier<Long> action) {
+        IdempotencyCache.Claim claim = idempotencyCache.claim(idempotencyKey, fingerprint);
+        if (!claim.isOwner()) {
+            return claim.await();
+        }
         try {
-            em.getTransaction().begin();
-            if (!em.contains(reservation)) {
-                reservation = em.merge(reservation);
-            }
-            em.remove(reservation);
-            em.getTransaction().commit();
-        } catch (Exception e) {
-            if (em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
+            IdempotencyRecord record = findIdempotencyRecord(idempotencyKey);
+            Long reservationId;
+            if (record == null) {
+                try {
+                    reservationId = action.get();
+                } catch (RuntimeException e) {
+                    // Clé enregistrée entre-temps par une autre instance : violation d'unicité, ou
+                    // chevauchement avec la réservation d'origine committée juste avant
+                    record = findIdempotencyRecord(idempotencyKey);
+                    if (record == null) {
+                        throw e;
+                    }
+                    reservationId = recordedReservationId(record, operation, fingerprint);
+                }
+            } else {
+                reservationId = recordedReservationId(record, operation, fingerprint);
             }
+            claim.complete(reservationId);
+            return reservationId;
+        } catch (RuntimeException e) {
+            claim.fail(e);
             throw e;
+        }
+    }
+
+    private IdempotencyRecord findIdempotencyRecord(String idempotencyKey) {
+        EntityManager em = createEntityManager("idempotency");
+        try {
+            return em.find(IdempotencyRecord.class, idempotencyKey);
         } finally {
             em.close();
         }
     }
 
+    private static Long recordedReservationId(IdempotencyRecord record, String operation, String fingerprint) {
+        if (!record.getOperation().equals(operation)) {
+            throw new IllegalArgumentException("Clé d'idempotence " + record.getIdempotencyKey()
+                    + " déjà utilisée pour l'opération " + record.getOperation());
+        }
+        IdempotencyCache.checkFingerprint(record.getIdempotencyKey(), record.getFingerprint(), fingerprint);
+        return record.getReservationId();
+    }
+
+    // Empreinte SHA-256 de la requête : opération, réservation (pour une mise à jour),
+    // salle, utilisateur, dates et motif
+    private static String fingerprint(String operation, Reservation reservation) {
+        String payload = operation
+                + "|" + ("update".equals(operation) ? reservation.getId() : "")
+                + "|" + (reservation.getSalle() != null ? reservation.getSalle().getId() : null)
+                + "|" + (reservation.getUtilisateur() != null ? reservation.getUtilisateur().getId() : null)
+                + "|" + reservation.getDateDebut()
+                + "|" + reservation.getDateFin()
+                + "|" + reservation.getMotif();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return operation + ":" + HexFormat.of().formatHex(digest.digest(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void delete(Reservation reservation) {
+        try (PersistenceMetrics.Timer timer = metrics.start("delete")) {
+            EntityManager em = createEntityManager("delete");
+            try {
+                em.getTransaction().begin();
+                if (!em.contains(reservation)) {
+                    reservation = em.merge(reservation);
+                }
+                em.remove(reservation);
+                commit(em, "delete");
+                Reservation deleted = reservation;
+                commitListeners.forEach(listener -> listener.onDeleted(deleted));
+            } catch (Exception e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    // Création de l'EntityManager et commit mesurés séparément pour chaque opération
+    private EntityManager createEntityManager(String operation) {
+        try (PersistenceMetrics.Timer timer = metrics.start(operation + ".createEntityManager")) {
+            return emf.createEntityManager();
+        }
+    }
+
+    private void commit(EntityManager em, String operation) {
+        try (PersistenceMetrics.Timer timer = metrics.start(operation + ".commit")) {
+            em.getTransaction().commit();
+        }
+    }
+
 
 
 }
\ No newline at end of file